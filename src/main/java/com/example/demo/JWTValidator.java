@@ -4,6 +4,7 @@ import com.example.demo.models.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +26,9 @@ public class JWTValidator {
                     .parseClaimsJws(token)
                     .getBody();
 
+            if (body.get("userId") == null || body.get("sub") == null || body.get("role") == null) {
+                throw new MalformedJwtException("Token must contain userId, sub and role claims");
+            }
             user = new User(Long.parseLong(body.get("userId").toString()), body.get("sub").toString(),
                     body.get("sub").toString(),"12345", body.get("sub").toString()+"@example.com",
                     body.get("role").toString());
@@ -0,0 +1,63 @@
+package com.example.demo.configs;
+
+import com.example.demo.JWTValidator;
+import com.example.demo.models.User;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resolves the caller of a plain HTTP endpoint from an {@code Authorization: Bearer <token>} header,
+ * using the same JWT format as the WebSocket handshake.
+ */
+@Component
+public class HttpJWTValidator {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    Logger logger = LoggerFactory.getLogger(HttpJWTValidator.class);
+
+    @Autowired
+    private JWTValidator jwtValidator;
+
+    /**
+     * @return the authenticated caller, with its roles prefixed for {@code hasRole} checks, or {@code null}
+     *         if the header is missing or the token is invalid
+     */
+    public Authentication authenticate(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+
+        User user;
+        try {
+            user = jwtValidator.validate(header.substring(BEARER_PREFIX.length()).trim());
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("Rejected bearer token: " + e.getMessage());
+            return null;
+        }
+
+        String[] roles = Arrays.stream(StringUtils.commaDelimitedListToStringArray(user.getRole()))
+                .map(String::trim)
+                .filter(role -> !role.isEmpty())
+                .map(role -> role.startsWith(ROLE_PREFIX) ? role : ROLE_PREFIX + role)
+                .toArray(String[]::new);
+        List<GrantedAuthority> grantedAuthorities = AuthorityUtils.createAuthorityList(roles);
+        return new UsernamePasswordAuthenticationToken(user.getUsername(), null, grantedAuthorities);
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.example.demo.configs;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Populates the {@code SecurityContext} from a bearer JWT so that HTTP endpoints can be protected with
+ * regular {@code hasRole} rules. Meant for stateless chains (see SecurityConfig.TokenSecurityConfig).
+ */
+public class JWTAuthenticationFilter extends OncePerRequestFilter {
+
+    private final HttpJWTValidator httpJWTValidator;
+
+    public JWTAuthenticationFilter(HttpJWTValidator httpJWTValidator) {
+        this.httpJWTValidator = httpJWTValidator;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = httpJWTValidator.authenticate(request);
+        if (authentication != null) {
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+        filterChain.doFilter(request, response);
+    }
+}
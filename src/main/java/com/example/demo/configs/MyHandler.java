@@ -2,6 +2,7 @@ package com.example.demo.configs;
 
 import com.example.demo.services.WebSocketNotificationSenderService;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
@@ -18,5 +19,10 @@ public class MyHandler extends TextWebSocketHandler {
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         senderService.addToSession(session);
     }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        senderService.removeFromSession(session);
+    }
 }
 
@@ -0,0 +1,74 @@
+package com.example.demo.configs;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.context.NullSecurityContextRepository;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+
+@EnableWebSecurity
+@Configuration
+public class SecurityConfig extends WebSecurityConfigurerAdapter {
+
+    public static final String PUBLISHER_ROLE = "NOTIFICATION_PUBLISHER";
+    public static final String ADMIN_ROLE = "ADMIN";
+
+    private static final String[] TOKEN_AUTHENTICATED_PATHS = {"/notifications/**", "/admin/**"};
+
+    @Override
+    protected void configure(HttpSecurity http) throws Exception {
+        http.authorizeRequests()
+                .anyRequest().authenticated()
+                .and()
+                .formLogin()
+                .and()
+                .httpBasic();
+    }
+
+    /**
+     * Machine-to-machine endpoints authenticate every request with a bearer JWT (see JWTAuthenticationFilter).
+     * The chain never reads or writes the HTTP session, so a token can't be turned into a session cookie,
+     * which is also why CSRF protection is not needed here.
+     */
+    @Configuration
+    @Order(1)
+    public static class TokenSecurityConfig extends WebSecurityConfigurerAdapter {
+
+        @Autowired
+        private HttpJWTValidator httpJWTValidator;
+
+        @Override
+        protected void configure(HttpSecurity http) throws Exception {
+            http.requestMatcher(tokenAuthenticatedPaths())
+                    .addFilterBefore(new JWTAuthenticationFilter(httpJWTValidator), UsernamePasswordAuthenticationFilter.class)
+                    .csrf().disable()
+                    .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                    .and()
+                    .securityContext().securityContextRepository(new NullSecurityContextRepository())
+                    .and()
+                    .exceptionHandling().authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+                    .and()
+                    .authorizeRequests()
+                    .antMatchers(HttpMethod.POST, "/notifications/bulk").hasRole(PUBLISHER_ROLE)
+                    .antMatchers("/admin/**").hasRole(ADMIN_ROLE)
+                    .anyRequest().authenticated();
+        }
+    }
+
+    private static OrRequestMatcher tokenAuthenticatedPaths() {
+        AntPathRequestMatcher[] matchers = new AntPathRequestMatcher[TOKEN_AUTHENTICATED_PATHS.length];
+        for (int i = 0; i < matchers.length; i++) {
+            matchers[i] = new AntPathRequestMatcher(TOKEN_AUTHENTICATED_PATHS[i]);
+        }
+        return new OrRequestMatcher(matchers);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dtos.DeliveryLatencyReport;
+import com.example.demo.metrics.DeliveryLatencyTracker;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Restricted to the {@code ADMIN} role by {@link com.example.demo.configs.SecurityConfig}.
+ */
+@RestController
+@RequestMapping("/admin/delivery-latency")
+public class DeliveryLatencyController {
+
+    private final DeliveryLatencyTracker latencyTracker;
+
+    public DeliveryLatencyController(DeliveryLatencyTracker latencyTracker) {
+        this.latencyTracker = latencyTracker;
+    }
+
+    @GetMapping
+    public DeliveryLatencyReport report() {
+        return latencyTracker.report();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> reset() {
+        latencyTracker.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
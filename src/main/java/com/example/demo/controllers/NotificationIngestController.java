@@ -0,0 +1,106 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dtos.IngestBatchResult;
+import com.example.demo.dtos.IngestResult;
+import com.example.demo.dtos.WrapperWsNotification;
+import com.example.demo.services.WebSocketNotificationSenderService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/notifications")
+public class NotificationIngestController {
+
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    Logger logger = LoggerFactory.getLogger(NotificationIngestController.class);
+
+    private final WebSocketNotificationSenderService senderService;
+    private final ObjectReader notificationReader;
+    private final int batchSize;
+    private final long submitTimeoutMs;
+
+    public NotificationIngestController(WebSocketNotificationSenderService senderService,
+                                        ObjectMapper objectMapper,
+                                        @Value("${notifications.ingest.batch-size:500}") int batchSize,
+                                        @Value("${notifications.ingest.submit-timeout-ms:5000}") long submitTimeoutMs) {
+        this.senderService = senderService;
+        this.notificationReader = objectMapper.readerFor(WrapperWsNotification.class);
+        this.batchSize = Math.max(1, Math.min(batchSize, senderService.getOutboundCapacity()));
+        this.submitTimeoutMs = submitTimeoutMs;
+    }
+
+    /**
+     * Accepts a stream of newline (or whitespace) separated {@link WrapperWsNotification} documents.
+     * The body is parsed incrementally and handed to the sender in batches; when the outbound queue stays
+     * saturated for longer than the submit timeout, ingestion stops and the client is asked to retry.
+     */
+    @PostMapping(value = "/bulk", consumes = {APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE})
+    public ResponseEntity<IngestResult> ingest(HttpServletRequest request) throws IOException, InterruptedException {
+        IngestResult result = new IngestResult();
+        List<WrapperWsNotification> batch = new ArrayList<>(batchSize);
+        InputStream body = request.getInputStream();
+
+        try (MappingIterator<WrapperWsNotification> notifications = notificationReader.readValues(body)) {
+            while (notifications.hasNextValue()) {
+                batch.add(notifications.nextValue());
+                if (batch.size() == batchSize) {
+                    if (!submit(batch, result)) {
+                        return saturated(result);
+                    }
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // Whatever was parsed before the malformed document is still delivered
+            if (!submit(batch, result)) {
+                return saturated(result);
+            }
+            String line = e.getLocation() != null ? String.valueOf(e.getLocation().getLineNr()) : "?";
+            result.setError("Malformed notification at line " + line + ": " + e.getOriginalMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+
+        if (!submit(batch, result)) {
+            return saturated(result);
+        }
+        result.setCompleted(true);
+        return ResponseEntity.ok(result);
+    }
+
+    private boolean submit(List<WrapperWsNotification> batch, IngestResult result) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        int accepted = senderService.submitBatch(batch, submitTimeoutMs, TimeUnit.MILLISECONDS);
+        result.addBatch(new IngestBatchResult(result.getBatches().size(), batch.size(), accepted));
+        return accepted == batch.size();
+    }
+
+    private ResponseEntity<IngestResult> saturated(IngestResult result) {
+        logger.warn("Outbound notification queue saturated, stopped ingesting after " + result.getAccepted() + " notifications");
+        result.setError("Outbound notification queue is saturated");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(submitTimeoutMs) + 1))
+                .body(result);
+    }
+}
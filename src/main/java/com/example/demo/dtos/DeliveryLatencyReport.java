@@ -0,0 +1,29 @@
+package com.example.demo.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryLatencyReport implements Serializable {
+
+    private int sampleRate;
+
+    private long tracedNotifications;
+
+    private LatencySummary queueWait;
+
+    private LatencySummary serialize;
+
+    private LatencySummary write;
+
+    private LatencySummary endToEnd;
+
+    private List<SessionLatency> slowestSessions;
+
+}
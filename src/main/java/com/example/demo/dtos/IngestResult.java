@@ -0,0 +1,30 @@
+package com.example.demo.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class IngestResult implements Serializable {
+
+    private List<IngestBatchResult> batches = new ArrayList<>();
+
+    private long received;
+
+    private long accepted;
+
+    private boolean completed;
+
+    private String error;
+
+    public void addBatch(IngestBatchResult batchResult) {
+        batches.add(batchResult);
+        received += batchResult.getReceived();
+        accepted += batchResult.getAccepted();
+    }
+
+}
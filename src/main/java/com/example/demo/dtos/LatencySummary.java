@@ -0,0 +1,31 @@
+package com.example.demo.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Latency distribution in microseconds.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencySummary implements Serializable {
+
+    private long count;
+
+    private long mean;
+
+    private long p50;
+
+    private long p90;
+
+    private long p99;
+
+    private long p999;
+
+    private long max;
+
+}
@@ -0,0 +1,29 @@
+package com.example.demo.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Sampled write latencies of a single WebSocket session, in microseconds.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionLatency implements Serializable {
+
+    private String sessionId;
+
+    private String user;
+
+    private long samples;
+
+    private long averageWrite;
+
+    private long maxWrite;
+
+    private long lastEndToEnd;
+
+}
@@ -0,0 +1,189 @@
+package com.example.demo.metrics;
+
+import com.example.demo.dtos.DeliveryLatencyReport;
+import com.example.demo.dtos.SessionLatency;
+import com.example.demo.utils.SessionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traces a sample of notifications from enqueue, through serialization, until the write to each session
+ * completes. Every method accepts a {@code null} trace, which is what unsampled notifications carry, so
+ * the cost on the hot path is a single random draw per notification. Within a sampled notification at most
+ * about {@code maxSampledWrites} session writes are timed, however many sessions it goes to.
+ */
+@Component
+public class DeliveryLatencyTracker {
+
+    private static final long WRITE_NOT_SAMPLED = Long.MIN_VALUE;
+
+    private static final Comparator<SessionLatency> BY_AVERAGE_WRITE = Comparator.comparingLong(SessionLatency::getAverageWrite);
+
+    private final int sampleRate;
+    private final int topSessions;
+    private final int minSessionSamples;
+    private final int maxSampledWrites;
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram serialize = new LatencyHistogram();
+    private final LatencyHistogram write = new LatencyHistogram();
+    private final LatencyHistogram endToEnd = new LatencyHistogram();
+    private final LongAdder tracedNotifications = new LongAdder();
+    private final Map<String, SessionLatencyStats> sessionStats = new ConcurrentHashMap<>();
+
+    public DeliveryLatencyTracker(@Value("${notifications.tracing.sample-rate:16}") int sampleRate,
+                                  @Value("${notifications.tracing.top-sessions:10}") int topSessions,
+                                  @Value("${notifications.tracing.min-session-samples:5}") int minSessionSamples,
+                                  @Value("${notifications.tracing.max-sampled-writes:64}") int maxSampledWrites) {
+        this.sampleRate = Math.max(0, sampleRate);
+        this.topSessions = Math.max(1, topSessions);
+        this.minSessionSamples = Math.max(1, minSessionSamples);
+        this.maxSampledWrites = Math.max(1, maxSampledWrites);
+    }
+
+    /**
+     * Starts tracing a notification sent directly by its caller.
+     *
+     * @return a trace for roughly one in {@code sampleRate} notifications, {@code null} otherwise
+     *         (and always {@code null} when tracing is disabled with a rate of 0)
+     */
+    public DeliveryTrace startTrace() {
+        return startTrace(false);
+    }
+
+    /**
+     * Starts tracing a notification that is about to wait in the delivery queue; only these feed the
+     * queue wait histogram.
+     */
+    public DeliveryTrace startQueuedTrace() {
+        return startTrace(true);
+    }
+
+    private DeliveryTrace startTrace(boolean queued) {
+        if (sampleRate == 0 || (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)) {
+            return null;
+        }
+        tracedNotifications.increment();
+        return new DeliveryTrace(System.nanoTime(), queued);
+    }
+
+    /**
+     * Announces how many session writes the notification fans out to, so that only a bounded number of
+     * them is timed.
+     */
+    public void expectWrites(DeliveryTrace trace, int writes) {
+        if (trace != null) {
+            trace.writeSampleRate = Math.max(1, writes / maxSampledWrites);
+        }
+    }
+
+    public void serializeStarted(DeliveryTrace trace) {
+        if (trace != null) {
+            trace.serializeStartedAt = System.nanoTime();
+            if (trace.queued) {
+                queueWait.record(micros(trace.serializeStartedAt - trace.enqueuedAt));
+            }
+        }
+    }
+
+    public void serialized(DeliveryTrace trace) {
+        if (trace != null) {
+            trace.serializedAt = System.nanoTime();
+            serialize.record(micros(trace.serializedAt - trace.serializeStartedAt));
+        }
+    }
+
+    /**
+     * Called right before the socket write.
+     *
+     * @return the value to hand back to {@link #written(DeliveryTrace, WebSocketSession, long)}
+     */
+    public long writeStarted(DeliveryTrace trace) {
+        if (trace == null
+                || (trace.writeSampleRate > 1 && ThreadLocalRandom.current().nextInt(trace.writeSampleRate) != 0)) {
+            return WRITE_NOT_SAMPLED;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Starts collecting per-session write latencies for a newly opened session.
+     */
+    public void track(WebSocketSession session) {
+        sessionStats.putIfAbsent(session.getId(), new SessionLatencyStats(session.getId(), SessionUtils.userOf(session)));
+    }
+
+    /**
+     * Called once the socket write has returned successfully. Writes that fail or are dropped by a full
+     * session outbox are never reported, so stuck sessions cannot show up as fast ones.
+     */
+    public void written(DeliveryTrace trace, WebSocketSession session, long writeStartedAt) {
+        if (trace == null || writeStartedAt == WRITE_NOT_SAMPLED) {
+            return;
+        }
+        long completedAt = System.nanoTime();
+        long writeMicros = micros(completedAt - writeStartedAt);
+        long endToEndMicros = micros(completedAt - trace.enqueuedAt);
+        write.record(writeMicros);
+        endToEnd.record(endToEndMicros);
+        // Only sessions registered through track() are ranked, so a write racing forget() cannot resurrect one
+        SessionLatencyStats stats = sessionStats.get(session.getId());
+        if (stats != null) {
+            stats.record(writeMicros, endToEndMicros);
+        }
+    }
+
+    public void forget(WebSocketSession session) {
+        sessionStats.remove(session.getId());
+    }
+
+    public DeliveryLatencyReport report() {
+        return new DeliveryLatencyReport(sampleRate, tracedNotifications.sum(), queueWait.summarize(),
+                serialize.summarize(), write.summarize(), endToEnd.summarize(), slowestSessions());
+    }
+
+    public void reset() {
+        queueWait.reset();
+        serialize.reset();
+        write.reset();
+        endToEnd.reset();
+        tracedNotifications.reset();
+        sessionStats.values().forEach(SessionLatencyStats::reset);
+    }
+
+    /**
+     * Ranks the open sessions by their average write latency when the report is read. Sessions with fewer
+     * than {@code minSessionSamples} sampled writes are left out so that a single stall cannot top the board.
+     */
+    List<SessionLatency> slowestSessions() {
+        PriorityQueue<SessionLatency> slowest = new PriorityQueue<>(topSessions + 1, BY_AVERAGE_WRITE);
+        sessionStats.values().forEach(stats -> {
+            if (stats.samples() < minSessionSamples) {
+                return;
+            }
+            slowest.offer(stats.snapshot());
+            if (slowest.size() > topSessions) {
+                slowest.poll();
+            }
+        });
+
+        List<SessionLatency> result = new ArrayList<>(slowest);
+        result.sort(BY_AVERAGE_WRITE.reversed());
+        return result;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
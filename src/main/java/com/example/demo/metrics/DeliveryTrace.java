@@ -0,0 +1,20 @@
+package com.example.demo.metrics;
+
+/**
+ * Timestamps ({@link System#nanoTime()}) of one sampled notification on its way to the sessions.
+ */
+public class DeliveryTrace {
+
+    final long enqueuedAt;
+    /** Whether the notification waited in the delivery queue, as opposed to being sent by its caller directly. */
+    final boolean queued;
+    long serializeStartedAt;
+    long serializedAt;
+    /** Only one in this many session writes of the notification is timed. */
+    int writeSampleRate = 1;
+
+    DeliveryTrace(long enqueuedAt, boolean queued) {
+        this.enqueuedAt = enqueuedAt;
+        this.queued = queued;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.metrics;
+
+import com.example.demo.dtos.LatencySummary;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of microsecond latencies, in the spirit of HdrHistogram: every power of two
+ * is split into 16 linear sub-buckets, so recorded values keep roughly 6% precision up to {@link #MAX_VALUE}.
+ * Bucket counts are {@link LongAdder}s, so writer threads hitting the same few buckets do not contend.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF << 1;
+
+    /** One hour, larger values are clamped. */
+    static final long MAX_VALUE = 3_600_000_000L;
+
+    private final LongAdder[] counts = new LongAdder[indexOf(MAX_VALUE) + 1];
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+        counts[indexOf(value)].increment();
+        totalCount.increment();
+        totalValue.add(value);
+        maxValue.accumulate(value);
+    }
+
+    public void reset() {
+        for (LongAdder count : counts) {
+            count.reset();
+        }
+        totalCount.reset();
+        totalValue.reset();
+        maxValue.reset();
+    }
+
+    public LatencySummary summarize() {
+        long[] snapshot = new long[counts.length];
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return new LatencySummary(0, 0, 0, 0, 0, 0, 0);
+        }
+
+        long max = maxValue.get();
+        return new LatencySummary(count,
+                totalValue.sum() / Math.max(1, totalCount.sum()),
+                Math.min(percentile(snapshot, count, 50.0), max),
+                Math.min(percentile(snapshot, count, 90.0), max),
+                Math.min(percentile(snapshot, count, 99.0), max),
+                Math.min(percentile(snapshot, count, 99.9), max),
+                max);
+    }
+
+    private static long percentile(long[] snapshot, long count, double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return highestValueIn(i);
+            }
+        }
+        return highestValueIn(snapshot.length - 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long lowest = (long) (index % SUB_BUCKET_HALF + SUB_BUCKET_HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
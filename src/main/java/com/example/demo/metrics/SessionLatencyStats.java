@@ -0,0 +1,42 @@
+package com.example.demo.metrics;
+
+import com.example.demo.dtos.SessionLatency;
+
+class SessionLatencyStats {
+
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final String sessionId;
+    private final String user;
+    private long samples;
+    private double averageWrite;
+    private long maxWrite;
+    private long lastEndToEnd;
+
+    SessionLatencyStats(String sessionId, String user) {
+        this.sessionId = sessionId;
+        this.user = user;
+    }
+
+    synchronized void record(long writeMicros, long endToEndMicros) {
+        averageWrite = samples == 0 ? writeMicros : averageWrite + EWMA_WEIGHT * (writeMicros - averageWrite);
+        maxWrite = Math.max(maxWrite, writeMicros);
+        lastEndToEnd = endToEndMicros;
+        samples++;
+    }
+
+    synchronized void reset() {
+        samples = 0;
+        averageWrite = 0;
+        maxWrite = 0;
+        lastEndToEnd = 0;
+    }
+
+    synchronized long samples() {
+        return samples;
+    }
+
+    synchronized SessionLatency snapshot() {
+        return new SessionLatency(sessionId, user, samples, Math.round(averageWrite), maxWrite, lastEndToEnd);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives a WebSocket session its own bounded queue of pending writes, drained in order by a shared writer
+ * pool. Enqueueing never blocks, so a slow client only ever holds up its own messages; once its queue is
+ * full the session is considered unreliable and closed.
+ */
+public class SessionOutbox extends WebSocketSessionDecorator {
+
+    interface Write {
+        void writeTo(WebSocketSession session) throws IOException;
+    }
+
+    Logger logger = LoggerFactory.getLogger(SessionOutbox.class);
+
+    private final Executor writers;
+    private final int capacity;
+    private final Queue<Write> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public SessionOutbox(WebSocketSession delegate, Executor writers, int capacity) {
+        super(delegate);
+        this.writers = writers;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return {@code false} if the write was dropped because the queue is full or the session is closed
+     */
+    boolean offer(Write write) {
+        if (closed.get()) {
+            return false;
+        }
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            closeAsUnreliable();
+            return false;
+        }
+        pending.add(write);
+        scheduleDrain();
+        return true;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (!offer(session -> session.sendMessage(message))) {
+            throw new SessionLimitExceededException("Outbound queue of session " + getId() + " is full",
+                    CloseStatus.SESSION_NOT_RELIABLE);
+        }
+    }
+
+    /**
+     * Drops the pending writes of a session that has been closed.
+     */
+    void discard() {
+        closed.set(true);
+        pending.clear();
+        size.set(0);
+    }
+
+    private void closeAsUnreliable() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        logger.warn("Outbound queue of session " + getId() + " is full, closing it");
+        pending.clear();
+        size.set(0);
+        execute(() -> {
+            try {
+                getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not close session " + getId(), e);
+            }
+        });
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true) && !execute(this::drain)) {
+            draining.set(false);
+        }
+    }
+
+    private void drain() {
+        try {
+            Write write;
+            while (!closed.get() && (write = pending.poll()) != null) {
+                size.decrementAndGet();
+                try {
+                    write.writeTo(getDelegate());
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Could not write to session " + getId(), e);
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+        // A write may have been queued after the last poll but before the flag was cleared
+        if (!closed.get() && !pending.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private boolean execute(Runnable task) {
+        try {
+            writers.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.debug("Writer pool rejected a task for session " + getId());
+            return false;
+        }
+    }
+}
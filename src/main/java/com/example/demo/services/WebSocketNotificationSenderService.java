@@ -1,48 +1,292 @@
 package com.example.demo.services;
 
 import com.example.demo.dtos.WrapperWsNotification;
+import com.example.demo.metrics.DeliveryLatencyTracker;
+import com.example.demo.metrics.DeliveryTrace;
+import com.example.demo.utils.SessionUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
-import java.io.IOException;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class WebSocketNotificationSenderService {
 
-    private List<WebSocketSession> sessions = new CopyOnWriteArrayList<>();
+    Logger logger = LoggerFactory.getLogger(WebSocketNotificationSenderService.class);
+
+    private List<SessionOutbox> sessions = new CopyOnWriteArrayList<>();
+    private Map<String, Set<SessionOutbox>> sessionsByUser = new ConcurrentHashMap<>();
     private ObjectMapper mapper = new ObjectMapper();
 
+    // Submitted batches are serialized and handed to the session outboxes in order by a single thread; the
+    // permits bound how many notifications may wait for it before submitters are made to wait.
+    private final ExecutorService deliveryExecutor = Executors.newSingleThreadExecutor(daemonThreads("ws-notification-delivery"));
+    private final Semaphore outboundPermits;
+    private final int outboundCapacity;
+    // Drains the per-session outboxes, so socket writes never run on the delivery or caller threads
+    private final ExecutorService writerExecutor;
+    private final int sessionCapacity;
+    // Multicasts to large recipient sets are split into chunks handed to the outboxes by this pool. Its queue
+    // is bounded and a full queue makes the caller run the chunk itself.
+    private final ExecutorService fanOutExecutor;
+    private final int fanOutChunkSize;
+    private final DeliveryLatencyTracker latencyTracker;
+
+    public WebSocketNotificationSenderService(DeliveryLatencyTracker latencyTracker,
+                                              @Value("${notifications.outbound.capacity:10000}") int outboundCapacity,
+                                              @Value("${notifications.outbound.writer-threads:8}") int writerThreads,
+                                              @Value("${notifications.outbound.session-capacity:1000}") int sessionCapacity,
+                                              @Value("${notifications.fanout.parallelism:4}") int fanOutParallelism,
+                                              @Value("${notifications.fanout.chunk-size:1024}") int fanOutChunkSize) {
+        if (outboundCapacity < 1) {
+            throw new IllegalArgumentException("notifications.outbound.capacity must be at least 1, was " + outboundCapacity);
+        }
+        if (writerThreads < 1) {
+            throw new IllegalArgumentException("notifications.outbound.writer-threads must be at least 1, was " + writerThreads);
+        }
+        if (sessionCapacity < 1) {
+            throw new IllegalArgumentException("notifications.outbound.session-capacity must be at least 1, was " + sessionCapacity);
+        }
+        if (fanOutParallelism < 1) {
+            throw new IllegalArgumentException("notifications.fanout.parallelism must be at least 1, was " + fanOutParallelism);
+        }
+        if (fanOutChunkSize < 1) {
+            throw new IllegalArgumentException("notifications.fanout.chunk-size must be at least 1, was " + fanOutChunkSize);
+        }
+        this.latencyTracker = latencyTracker;
+        this.outboundCapacity = outboundCapacity;
+        this.outboundPermits = new Semaphore(outboundCapacity);
+        this.writerExecutor = Executors.newFixedThreadPool(writerThreads, daemonThreads("ws-notification-writer"));
+        this.sessionCapacity = sessionCapacity;
+        this.fanOutChunkSize = fanOutChunkSize;
+        this.fanOutExecutor = new ThreadPoolExecutor(fanOutParallelism, fanOutParallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fanOutParallelism * 2), daemonThreads("ws-notification-fanout"),
+                (chunk, executor) -> chunk.run());
+    }
+
     public void addToSession(WebSocketSession session) {
-        sessions.add(session);
+        SessionOutbox outbox = new SessionOutbox(session, writerExecutor, sessionCapacity);
+        sessions.add(outbox);
+        latencyTracker.track(session);
+
+        String user = SessionUtils.userOf(session);
+        if (user != null) {
+            sessionsByUser.compute(user, (name, userSessions) -> {
+                Set<SessionOutbox> updated = userSessions != null ? userSessions : new CopyOnWriteArraySet<>();
+                updated.add(outbox);
+                return updated;
+            });
+        }
+    }
+
+    public void removeFromSession(WebSocketSession session) {
+        sessions.removeIf(registered -> {
+            if (!registered.getId().equals(session.getId())) {
+                return false;
+            }
+            registered.discard();
+            return true;
+        });
+
+        String user = SessionUtils.userOf(session);
+        if (user != null) {
+            sessionsByUser.computeIfPresent(user, (name, userSessions) -> {
+                userSessions.removeIf(registered -> registered.getId().equals(session.getId()));
+                return userSessions.isEmpty() ? null : userSessions;
+            });
+        }
+        latencyTracker.forget(session);
     }
 
     public void convertAndSend(WrapperWsNotification payload) throws JsonProcessingException {
-        String payloadString = mapper.writeValueAsString(payload);
-        sessions.stream().forEach(session -> {
+        send(payload, latencyTracker.startTrace());
+    }
+
+    public void convertAndSendToUser(String user, WrapperWsNotification payload) throws JsonProcessingException {
+        sendToUser(user, payload, latencyTracker.startTrace());
+    }
+
+    /**
+     * Sends the same notification to every session of each given user. The payload is serialized once and
+     * each user costs a single index lookup; recipient sets larger than a chunk are fanned out in parallel
+     * chunks. Returns once every chunk has been handed to the session outboxes, the socket writes themselves
+     * happen asynchronously.
+     */
+    public void convertAndSendToUsers(Collection<String> users, WrapperWsNotification payload) throws JsonProcessingException {
+        DeliveryTrace trace = latencyTracker.startTrace();
+        TextMessage message = serialize(payload, trace);
+        Collection<String> recipients = users instanceof Set ? users : new HashSet<>(users);
+        latencyTracker.expectWrites(trace, recipients.size());
+
+        List<Future<?>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(Math.min(recipients.size(), fanOutChunkSize));
+        for (String user : recipients) {
+            chunk.add(user);
+            if (chunk.size() == fanOutChunkSize) {
+                List<String> chunkUsers = chunk;
+                chunks.add(fanOutExecutor.submit(() -> chunkUsers.forEach(chunkUser -> sendToUserSessions(chunkUser, message, trace))));
+                chunk = new ArrayList<>(fanOutChunkSize);
+            }
+        }
+        // The remainder is handed off by the caller while the pool works on the full chunks
+        chunk.forEach(user -> sendToUserSessions(user, message, trace));
+        awaitChunks(chunks);
+    }
+
+    private void send(WrapperWsNotification payload, DeliveryTrace trace) throws JsonProcessingException {
+        TextMessage message = serialize(payload, trace);
+        latencyTracker.expectWrites(trace, sessions.size());
+        sessions.stream().forEach(session -> sendMessage(session, message, trace));
+    }
+
+    private void sendToUser(String user, WrapperWsNotification payload, DeliveryTrace trace) throws JsonProcessingException {
+        TextMessage message = serialize(payload, trace);
+        sendToUserSessions(user, message, trace);
+    }
+
+    private void sendToUserSessions(String user, TextMessage message, DeliveryTrace trace) {
+        if (user == null) {
+            return;
+        }
+        sessionsByUser.getOrDefault(user, Collections.emptySet())
+                .forEach(session -> sendMessage(session, message, trace));
+    }
+
+    private void awaitChunks(List<Future<?>> chunks) {
+        for (Future<?> chunk : chunks) {
             try {
-                session.sendMessage(new TextMessage(payloadString));
-            } catch (IOException e) {
-                e.printStackTrace();
+                chunk.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.error("Could not deliver notification chunk", e.getCause());
             }
+        }
+    }
+
+    private TextMessage serialize(WrapperWsNotification payload, DeliveryTrace trace) throws JsonProcessingException {
+        latencyTracker.serializeStarted(trace);
+        TextMessage message = new TextMessage(mapper.writeValueAsString(payload));
+        latencyTracker.serialized(trace);
+        return message;
+    }
 
+    private void sendMessage(SessionOutbox session, TextMessage message, DeliveryTrace trace) {
+        // Dropped when the session's outbox is full, in which case the outbox closes the session
+        session.offer(delegate -> {
+            long writeStartedAt = latencyTracker.writeStarted(trace);
+            delegate.sendMessage(message);
+            latencyTracker.written(trace, delegate, writeStartedAt);
         });
     }
 
-    public void convertAndSendToUser(String user, WrapperWsNotification payload) throws JsonProcessingException {
-        String payloadString = mapper.writeValueAsString(payload);
-        sessions.forEach(session -> {
-            if (session.getPrincipal().getName().equals(user)) {
+    public int getOutboundCapacity() {
+        return outboundCapacity;
+    }
+
+    /**
+     * Queues a batch for asynchronous delivery. Notifications carrying a user are sent to that user's
+     * sessions, the rest are broadcast. Blocks for up to {@code timeout} while the delivery queue is full;
+     * a slow session does not hold it up, it only fills and eventually loses its own outbox.
+     *
+     * @return the number of notifications accepted, either the whole batch or 0 if the queue stayed saturated
+     */
+    public int submitBatch(List<WrapperWsNotification> batch, long timeout, TimeUnit unit) throws InterruptedException {
+        int size = batch.size();
+        if (size == 0) {
+            return 0;
+        }
+        if (size > outboundCapacity) {
+            throw new IllegalArgumentException("Batch of " + size + " exceeds outbound capacity " + outboundCapacity);
+        }
+        if (!outboundPermits.tryAcquire(size, timeout, unit)) {
+            return 0;
+        }
+
+        // Traces start here so that their queue wait covers the time spent behind earlier batches
+        DeliveryTrace[] traces = new DeliveryTrace[size];
+        for (int i = 0; i < size; i++) {
+            traces[i] = latencyTracker.startQueuedTrace();
+        }
+
+        try {
+            deliveryExecutor.execute(() -> {
                 try {
-                    session.sendMessage(new TextMessage(payloadString));
-                } catch (IOException e) {
-                    e.printStackTrace();
+                    for (int i = 0; i < size; i++) {
+                        deliver(batch.get(i), traces[i]);
+                    }
+                } finally {
+                    outboundPermits.release(size);
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            outboundPermits.release(size);
+            throw e;
+        }
+        return size;
+    }
+
+    private void deliver(WrapperWsNotification payload, DeliveryTrace trace) {
+        try {
+            if (payload.getUser() != null && payload.getUser().getUsername() != null) {
+                sendToUser(payload.getUser().getUsername(), payload, trace);
+            } else {
+                send(payload, trace);
             }
-        });
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.error("Could not deliver notification", e);
+        }
+    }
+
+    int indexedSessionCount(String user) {
+        return sessionsByUser.getOrDefault(user, Collections.emptySet()).size();
+    }
+
+    boolean isIndexed(String user) {
+        return sessionsByUser.containsKey(user);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deliveryExecutor.shutdown();
+        fanOutExecutor.shutdown();
+        writerExecutor.shutdown();
     }
 }
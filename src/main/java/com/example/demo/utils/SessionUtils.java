@@ -0,0 +1,19 @@
+package com.example.demo.utils;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.security.Principal;
+
+public final class SessionUtils {
+
+    private SessionUtils() {
+    }
+
+    /**
+     * @return the name of the principal the session was opened with, or {@code null} for anonymous sessions
+     */
+    public static String userOf(WebSocketSession session) {
+        Principal principal = session.getPrincipal();
+        return principal != null ? principal.getName() : null;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.controllers;
+
+import com.example.demo.JWTValidator;
+import com.example.demo.configs.HttpJWTValidator;
+import com.example.demo.configs.SecurityConfig;
+import com.example.demo.dtos.DeliveryLatencyReport;
+import com.example.demo.metrics.DeliveryLatencyTracker;
+import com.example.demo.models.User;
+import io.jsonwebtoken.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(DeliveryLatencyController.class)
+@Import({SecurityConfig.class, HttpJWTValidator.class})
+class DeliveryLatencyControllerTest {
+
+    private static final String ADMIN_TOKEN = "admin-token";
+    private static final String USER_TOKEN = "user-token";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DeliveryLatencyTracker latencyTracker;
+
+    @MockBean
+    private JWTValidator jwtValidator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DeliveryLatencyReport report = new DeliveryLatencyReport();
+        report.setSampleRate(16);
+        when(latencyTracker.report()).thenReturn(report);
+        doThrow(new SignatureException("bad signature")).when(jwtValidator).validate(anyString());
+        doReturn(user("ADMIN")).when(jwtValidator).validate(ADMIN_TOKEN);
+        doReturn(user("USER")).when(jwtValidator).validate(USER_TOKEN);
+    }
+
+    @Test
+    void missingTokenIsUnauthorized() throws Exception {
+        mockMvc.perform(withToken(get("/admin/delivery-latency"), null))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void tokenWithoutAdminRoleIsForbidden() throws Exception {
+        mockMvc.perform(withToken(get("/admin/delivery-latency"), USER_TOKEN))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(withToken(delete("/admin/delivery-latency"), USER_TOKEN))
+                .andExpect(status().isForbidden());
+
+        verify(latencyTracker, never()).reset();
+    }
+
+    @Test
+    void adminReadsAndResetsTheReport() throws Exception {
+        mockMvc.perform(withToken(get("/admin/delivery-latency"), ADMIN_TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sampleRate").value(16));
+
+        mockMvc.perform(withToken(delete("/admin/delivery-latency"), ADMIN_TOKEN))
+                .andExpect(status().isNoContent());
+        verify(latencyTracker).reset();
+    }
+
+    @Test
+    void adminCallsLeaveNoSessionToReplay() throws Exception {
+        MvcResult result = mockMvc.perform(withToken(get("/admin/delivery-latency"), ADMIN_TOKEN))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(result.getRequest().getSession(false)).isNull();
+
+        MockHttpSession session = new MockHttpSession();
+        mockMvc.perform(withToken(get("/admin/delivery-latency"), ADMIN_TOKEN).session(session))
+                .andExpect(status().isOk());
+        assertThat(session.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY)).isNull();
+
+        mockMvc.perform(withToken(delete("/admin/delivery-latency"), null).session(session))
+                .andExpect(status().isUnauthorized());
+        verify(latencyTracker, never()).reset();
+    }
+
+    private static MockHttpServletRequestBuilder withToken(MockHttpServletRequestBuilder request, String token) {
+        return token != null ? request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token) : request;
+    }
+
+    private static User user(String role) {
+        return new User(1L, "operator", "operator", "12345", "operator@example.com", role);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.demo.controllers;
+
+import com.example.demo.JWTValidator;
+import com.example.demo.configs.HttpJWTValidator;
+import com.example.demo.configs.SecurityConfig;
+import com.example.demo.dtos.WrapperWsNotification;
+import com.example.demo.models.User;
+import com.example.demo.services.WebSocketNotificationSenderService;
+import io.jsonwebtoken.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(NotificationIngestController.class)
+@Import({SecurityConfig.class, HttpJWTValidator.class})
+@TestPropertySource(properties = "notifications.ingest.batch-size=2")
+class NotificationIngestControllerTest {
+
+    private static final String PUBLISHER_TOKEN = "publisher-token";
+    private static final String USER_TOKEN = "user-token";
+    private static final String LINE = "{\"notification\":\"hello\"}\n";
+
+    @TestConfiguration
+    static class SenderConfig {
+        @Bean
+        WebSocketNotificationSenderService senderService() {
+            WebSocketNotificationSenderService senderService = Mockito.mock(WebSocketNotificationSenderService.class);
+            when(senderService.getOutboundCapacity()).thenReturn(100);
+            return senderService;
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebSocketNotificationSenderService senderService;
+
+    @MockBean
+    private JWTValidator jwtValidator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Mockito.clearInvocations(senderService);
+        when(senderService.submitBatch(anyList(), anyLong(), any(TimeUnit.class)))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+        doThrow(new SignatureException("bad signature")).when(jwtValidator).validate(anyString());
+        doReturn(user("NOTIFICATION_PUBLISHER")).when(jwtValidator).validate(PUBLISHER_TOKEN);
+        doReturn(user("USER")).when(jwtValidator).validate(USER_TOKEN);
+    }
+
+    @Test
+    void splitsBodyIntoBatches() throws Exception {
+        mockMvc.perform(bulk(PUBLISHER_TOKEN, repeat(LINE, 5)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(true))
+                .andExpect(jsonPath("$.received").value(5))
+                .andExpect(jsonPath("$.accepted").value(5))
+                .andExpect(jsonPath("$.batches.length()").value(3))
+                .andExpect(jsonPath("$.batches[2].received").value(1));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<WrapperWsNotification>> batches = ArgumentCaptor.forClass(List.class);
+        verify(senderService, times(3)).submitBatch(batches.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+        assertThat(batches.getAllValues()).extracting(List::size).containsExactly(2, 2, 1);
+        assertThat(batches.getValue().get(0).getNotification()).isEqualTo("hello");
+    }
+
+    @Test
+    void malformedLineIsRejectedAfterEarlierBatches() throws Exception {
+        mockMvc.perform(bulk(PUBLISHER_TOKEN, LINE + LINE + "{\"notification\":\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.completed").value(false))
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.error").exists());
+
+        verify(senderService, times(1)).submitBatch(anyList(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void saturatedQueueAnswersServiceUnavailable() throws Exception {
+        when(senderService.submitBatch(anyList(), anyLong(), any(TimeUnit.class))).thenReturn(0);
+
+        mockMvc.perform(bulk(PUBLISHER_TOKEN, repeat(LINE, 5)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(jsonPath("$.accepted").value(0))
+                .andExpect(jsonPath("$.batches.length()").value(1));
+
+        verify(senderService, times(1)).submitBatch(anyList(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void missingTokenIsUnauthorized() throws Exception {
+        mockMvc.perform(bulk(null, LINE))
+                .andExpect(status().isUnauthorized());
+
+        verify(senderService, never()).submitBatch(anyList(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void invalidTokenIsUnauthorized() throws Exception {
+        mockMvc.perform(bulk("forged-token", LINE))
+                .andExpect(status().isUnauthorized());
+
+        verify(senderService, never()).submitBatch(anyList(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void tokenWithoutPublisherRoleIsForbidden() throws Exception {
+        mockMvc.perform(bulk(USER_TOKEN, LINE))
+                .andExpect(status().isForbidden());
+
+        verify(senderService, never()).submitBatch(anyList(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void bearerCallsLeaveNoSessionToReplay() throws Exception {
+        MvcResult result = mockMvc.perform(bulk(PUBLISHER_TOKEN, LINE))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(result.getRequest().getSession(false)).isNull();
+
+        MockHttpSession session = new MockHttpSession();
+        mockMvc.perform(bulk(PUBLISHER_TOKEN, LINE).session(session))
+                .andExpect(status().isOk());
+        assertThat(session.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY)).isNull();
+
+        mockMvc.perform(bulk(null, LINE).session(session))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private static MockHttpServletRequestBuilder bulk(String token, String body) {
+        MockHttpServletRequestBuilder request = post("/notifications/bulk")
+                .contentType("application/x-ndjson")
+                .content(body);
+        return token != null ? request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token) : request;
+    }
+
+    private static User user(String role) {
+        return new User(1L, "upstream", "upstream", "12345", "upstream@example.com", role);
+    }
+
+    private static String repeat(String line, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(line);
+        }
+        return builder.toString();
+    }
+}
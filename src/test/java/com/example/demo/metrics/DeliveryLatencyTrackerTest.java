@@ -0,0 +1,126 @@
+package com.example.demo.metrics;
+
+import com.example.demo.dtos.SessionLatency;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+class DeliveryLatencyTrackerTest {
+
+    private final DeliveryLatencyTracker tracker = new DeliveryLatencyTracker(1, 2, 2, 4);
+
+    @Test
+    void ranksSlowestSessionsFirstAndKeepsTopK() {
+        WebSocketSession fast = trackedSession("fast");
+        WebSocketSession slow = trackedSession("slow");
+        WebSocketSession medium = trackedSession("medium");
+
+        for (int i = 0; i < 2; i++) {
+            write(fast, 10);
+            write(slow, 30);
+            write(medium, 20);
+        }
+
+        assertThat(tracker.slowestSessions()).extracting(SessionLatency::getSessionId)
+                .containsExactly("slow", "medium");
+    }
+
+    @Test
+    void sessionsNeedMinimumSamplesToBeRanked() {
+        WebSocketSession stalled = trackedSession("stalled");
+        WebSocketSession steady = trackedSession("steady");
+
+        write(stalled, 1000);
+        write(steady, 10);
+        write(steady, 10);
+
+        assertThat(tracker.slowestSessions()).extracting(SessionLatency::getSessionId)
+                .containsExactly("steady");
+    }
+
+    @Test
+    void forgottenSessionsAreNotResurrectedByLateWrites() {
+        WebSocketSession closed = trackedSession("closed");
+        WebSocketSession untracked = session("untracked");
+
+        tracker.forget(closed);
+        for (int i = 0; i < 2; i++) {
+            write(closed, 10);
+            write(untracked, 10);
+        }
+
+        assertThat(tracker.slowestSessions()).isEmpty();
+        assertThat(tracker.report().getWrite().getCount()).isEqualTo(4);
+    }
+
+    @Test
+    void resetKeepsOpenSessionsTracked() {
+        WebSocketSession open = trackedSession("open");
+        write(open, 10);
+        write(open, 10);
+
+        tracker.reset();
+        assertThat(tracker.slowestSessions()).isEmpty();
+
+        write(open, 10);
+        write(open, 10);
+        assertThat(tracker.slowestSessions()).extracting(SessionLatency::getSessionId).containsExactly("open");
+    }
+
+    @Test
+    void zeroSampleRateDisablesTracing() {
+        assertThat(new DeliveryLatencyTracker(0, 10, 1, 4).startTrace()).isNull();
+    }
+
+    @Test
+    void queueWaitIsOnlyRecordedForQueuedNotifications() {
+        tracker.serializeStarted(tracker.startTrace());
+        assertThat(tracker.report().getQueueWait().getCount()).isZero();
+
+        tracker.serializeStarted(tracker.startQueuedTrace());
+        assertThat(tracker.report().getQueueWait().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void writesOfLargeFanOutsAreSubSampled() {
+        DeliveryTrace small = tracker.startTrace();
+        tracker.expectWrites(small, 4);
+        assertThat(sampledWrites(small, 4)).isEqualTo(4);
+
+        // About 4 of 4000 writes are timed, anything close to all of them means sub-sampling is off
+        DeliveryTrace large = tracker.startTrace();
+        tracker.expectWrites(large, 4000);
+        assertThat(sampledWrites(large, 4000)).isLessThan(400);
+    }
+
+    private int sampledWrites(DeliveryTrace trace, int writes) {
+        WebSocketSession session = trackedSession("fan-out");
+        long before = tracker.report().getWrite().getCount();
+        for (int i = 0; i < writes; i++) {
+            tracker.written(trace, session, tracker.writeStarted(trace));
+        }
+        return (int) (tracker.report().getWrite().getCount() - before);
+    }
+
+    private void write(WebSocketSession session, long millis) {
+        DeliveryTrace trace = tracker.startTrace();
+        tracker.written(trace, session, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private WebSocketSession trackedSession(String id) {
+        WebSocketSession session = session(id);
+        tracker.track(session);
+        return session;
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = Mockito.mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        return session;
+    }
+}
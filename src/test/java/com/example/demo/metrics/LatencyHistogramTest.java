@@ -0,0 +1,84 @@
+package com.example.demo.metrics;
+
+import com.example.demo.dtos.LatencySummary;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesHaveTheirOwnBucket() {
+        for (int value = 0; value < 32; value++) {
+            assertThat(LatencyHistogram.indexOf(value)).isEqualTo(value);
+            assertThat(LatencyHistogram.highestValueIn(value)).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void bucketBoundaries() {
+        assertThat(LatencyHistogram.indexOf(31)).isEqualTo(31);
+        assertThat(LatencyHistogram.indexOf(32)).isEqualTo(32);
+        assertThat(LatencyHistogram.indexOf(33)).isEqualTo(32);
+        assertThat(LatencyHistogram.indexOf(63)).isEqualTo(47);
+        assertThat(LatencyHistogram.indexOf(64)).isEqualTo(48);
+        assertThat(LatencyHistogram.indexOf(67)).isEqualTo(48);
+        assertThat(LatencyHistogram.indexOf(68)).isEqualTo(49);
+
+        assertThat(LatencyHistogram.highestValueIn(32)).isEqualTo(33);
+        assertThat(LatencyHistogram.highestValueIn(47)).isEqualTo(63);
+        assertThat(LatencyHistogram.highestValueIn(48)).isEqualTo(67);
+    }
+
+    @Test
+    void bucketsAreContiguousUpToMaxValue() {
+        int lastIndex = LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE);
+        for (int index = 0; index < lastIndex; index++) {
+            long highest = LatencyHistogram.highestValueIn(index);
+            assertThat(LatencyHistogram.indexOf(highest)).isEqualTo(index);
+            assertThat(LatencyHistogram.indexOf(highest + 1)).isEqualTo(index + 1);
+        }
+        assertThat(LatencyHistogram.highestValueIn(lastIndex)).isGreaterThanOrEqualTo(LatencyHistogram.MAX_VALUE);
+    }
+
+    @Test
+    void valuesOutsideTheRangeAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(LatencyHistogram.MAX_VALUE * 2);
+
+        LatencySummary summary = histogram.summarize();
+        assertThat(summary.getCount()).isEqualTo(2);
+        assertThat(summary.getP50()).isEqualTo(0);
+        assertThat(summary.getMax()).isEqualTo(LatencyHistogram.MAX_VALUE);
+        assertThat(summary.getP999()).isEqualTo(LatencyHistogram.MAX_VALUE);
+    }
+
+    @Test
+    void percentilesReportTheHighestValueOfTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        LatencySummary summary = histogram.summarize();
+        assertThat(summary.getCount()).isEqualTo(100);
+        assertThat(summary.getMean()).isEqualTo(50);
+        assertThat(summary.getP50()).isEqualTo(51);
+        assertThat(summary.getP90()).isEqualTo(91);
+        assertThat(summary.getP99()).isEqualTo(99);
+        // The bucket of 100 ends at 103, but a percentile never exceeds the recorded maximum
+        assertThat(summary.getP999()).isEqualTo(100);
+        assertThat(summary.getMax()).isEqualTo(100);
+    }
+
+    @Test
+    void emptyAndResetHistogramsSummarizeToZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.summarize()).isEqualTo(new LatencySummary(0, 0, 0, 0, 0, 0, 0));
+
+        histogram.record(42);
+        histogram.reset();
+        assertThat(histogram.summarize()).isEqualTo(new LatencySummary(0, 0, 0, 0, 0, 0, 0));
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.demo.services;
+
+import com.example.demo.dtos.WrapperWsNotification;
+import com.example.demo.metrics.DeliveryLatencyTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebSocketNotificationSenderServiceTest {
+
+    private final WebSocketNotificationSenderService senderService =
+            new WebSocketNotificationSenderService(new DeliveryLatencyTracker(0, 10, 1, 64), 100, 2, 3, 2, 3);
+
+    private final WrapperWsNotification payload = new WrapperWsNotification(null, "hello");
+
+    private final CountDownLatch releaseStalledWrites = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        releaseStalledWrites.countDown();
+        senderService.shutdown();
+    }
+
+    @Test
+    void userWithTwoSessionsReceivesOnBoth() throws Exception {
+        WebSocketSession first = session("1", "alice");
+        WebSocketSession second = session("2", "alice");
+        WebSocketSession other = session("3", "bob");
+
+        senderService.convertAndSendToUsers(Collections.singletonList("alice"), payload);
+
+        verify(first, timeout(1000)).sendMessage(any(TextMessage.class));
+        verify(second, timeout(1000)).sendMessage(any(TextMessage.class));
+        verify(other, never()).sendMessage(any());
+    }
+
+    @Test
+    void closingSessionsKeepsTheIndexInSync() throws Exception {
+        WebSocketSession first = session("1", "alice");
+        WebSocketSession second = session("2", "alice");
+
+        senderService.removeFromSession(first);
+        assertThat(senderService.indexedSessionCount("alice")).isEqualTo(1);
+
+        senderService.convertAndSendToUsers(Collections.singletonList("alice"), payload);
+        verify(second, timeout(1000)).sendMessage(any(TextMessage.class));
+        verify(first, never()).sendMessage(any());
+
+        senderService.removeFromSession(second);
+        assertThat(senderService.isIndexed("alice")).isFalse();
+    }
+
+    @Test
+    void unknownAndNullUsersAreSkipped() throws Exception {
+        WebSocketSession alice = session("1", "alice");
+
+        senderService.convertAndSendToUsers(Arrays.asList("nobody", null, "alice"), payload);
+
+        verify(alice, timeout(1000).times(1)).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void largeRecipientSetsAreDeliveredInChunksWithOneSerialization() throws Exception {
+        List<WebSocketSession> sessions = new ArrayList<>();
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sessions.add(session(String.valueOf(i), "user" + i));
+            users.add("user" + i);
+        }
+
+        senderService.convertAndSendToUsers(users, payload);
+
+        WebSocketMessage<?> expected = null;
+        for (WebSocketSession session : sessions) {
+            ArgumentCaptor<WebSocketMessage<?>> message = ArgumentCaptor.forClass(WebSocketMessage.class);
+            verify(session, timeout(1000)).sendMessage(message.capture());
+            if (expected == null) {
+                expected = message.getValue();
+            }
+            assertThat(message.getValue()).isSameAs(expected);
+        }
+    }
+
+    @Test
+    void stalledSessionDoesNotHoldUpOthersAndIsClosedWhenItsOutboxFills() throws Exception {
+        WebSocketSession stalled = session("1", "slow");
+        doAnswer(invocation -> {
+            releaseStalledWrites.await();
+            return null;
+        }).when(stalled).sendMessage(any());
+        WebSocketSession healthy = session("2", "fast");
+
+        // One write in flight plus three queued fill the stalled outbox, the fifth notification overflows it
+        for (int i = 1; i <= 5; i++) {
+            assertThat(senderService.submitBatch(Collections.singletonList(payload), 1, TimeUnit.SECONDS)).isEqualTo(1);
+            verify(healthy, timeout(1000).times(i)).sendMessage(any(TextMessage.class));
+        }
+
+        verify(stalled, timeout(1000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(healthy, never()).close(any());
+    }
+
+    @Test
+    void failedWritesAreNotTimed() throws Exception {
+        DeliveryLatencyTracker tracker = new DeliveryLatencyTracker(1, 10, 1, 64);
+        // A single writer drains the outboxes in the order they were scheduled
+        WebSocketNotificationSenderService tracedService = new WebSocketNotificationSenderService(tracker, 100, 1, 3, 2, 3);
+        try {
+            WebSocketSession broken = session(tracedService, "1", "broken");
+            doThrow(new IOException("connection reset")).when(broken).sendMessage(any());
+            WebSocketSession healthy = session(tracedService, "2", "healthy");
+
+            tracedService.convertAndSend(payload);
+
+            verify(healthy, timeout(1000)).sendMessage(any(TextMessage.class));
+            verify(broken).sendMessage(any(TextMessage.class));
+            long deadline = System.currentTimeMillis() + 1000;
+            while (tracker.report().getWrite().getCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(tracker.report().getWrite().getCount()).isEqualTo(1);
+            assertThat(tracker.report().getEndToEnd().getCount()).isEqualTo(1);
+        } finally {
+            tracedService.shutdown();
+        }
+    }
+
+    private WebSocketSession session(String id, String user) {
+        return session(senderService, id, user);
+    }
+
+    private static WebSocketSession session(WebSocketNotificationSenderService service, String id, String user) {
+        WebSocketSession session = Mockito.mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.getPrincipal()).thenReturn(() -> user);
+        when(session.isOpen()).thenReturn(true);
+        service.addToSession(session);
+        return session;
+    }
+}